@@ -54,8 +54,16 @@ public class EnemyView {
      * @param enemy The EnemyData object representing the enemy's current state.
      */
     public void update(EnemyData enemy) {
-        double health = enemy.getHealth();
+        update(enemy.getHealth());
+    }
 
+    /**
+     * Updates the enemy's health bar and numerical HP label for the
+     * given health value, e.g. taken from a {@link GameEvent} snapshot.
+     *
+     * @param health The enemy's current health.
+     */
+    public void update(double health) {
         // Update health bar progress
         hpBar.setProgress(health / 100.0);
 
@@ -1,66 +1,62 @@
 // GameController.java
 import javafx.animation.PauseTransition;
 import javafx.scene.control.Button;
-import javafx.scene.control.Label;
-import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.util.Duration;
 
 /**
  * Controls the main game logic and mediates between the model and view layers.
  * <p>
- * The GameController connects {@link PlayerData}, {@link EnemyData} and {@link GameSessionData}
- * (model) with {@link PlayerView} and {@link EnemyView} (view). It handles user input,
- * applies game rules (hits, misses, healing, range progression), updates the UI and
- * writes messages into the log area.
+ * The GameController handles user input and applies the game rules (hits, misses,
+ * healing, range progression) to {@link PlayerData}, {@link EnemyData} and
+ * {@link GameSessionData}. Every model change is published as a {@link GameEvent}
+ * on the {@link GameEventBus}; the views are updated by subscribers such as
+ * {@link GameRenderer} rather than by the controller itself.
  * </p>
  */
 public class GameController {
     private PlayerData player;
     private EnemyData enemy;
     private PlayerView playerView;
-    private EnemyView enemyView;
     private GameSessionData session;
-    private Label rangeLabel, scoreLabel;
-    private TextArea logArea;
+    private GameEventBus bus;
     private TextField input;
     private Button guessBtn, resetBtn;
 
+    /** Delay before a hit lands, or {@code null} if no hit is in progress. */
+    private PauseTransition pendingHit;
+
+    /** Whether repeated wrong guesses are answered with an "already tried" message. */
+    private boolean repeatFeedback = true;
+
     /**
      * Construct a GameController and wire up UI event handlers.
      *
      * @param player      player data model
      * @param enemy       enemy data model
-     * @param playerView  player visual view
-     * @param enemyView   enemy visual view
+     * @param playerView  player visual view (used for the attack animation)
      * @param session     current game session (range, score, target)
-     * @param rangeLabel  label that displays the current guess range
-     * @param scoreLabel  label that displays score and high score
-     * @param logArea     text area used for the scrollable log
+     * @param bus         event bus the model changes are published to
      * @param input       text field where the player types guesses
      * @param guessBtn    button to submit a guess
      * @param resetBtn    button to reset the game
      */
     public GameController(PlayerData player, EnemyData enemy,
-                          PlayerView playerView, EnemyView enemyView,
-                          GameSessionData session,
-                          Label rangeLabel, Label scoreLabel, TextArea logArea,
+                          PlayerView playerView, GameSessionData session,
+                          GameEventBus bus,
                           TextField input, Button guessBtn, Button resetBtn) {
 
         this.player = player;
         this.enemy = enemy;
         this.playerView = playerView;
-        this.enemyView = enemyView;
         this.session = session;
-        this.rangeLabel = rangeLabel;
-        this.scoreLabel = scoreLabel;
-        this.logArea = logArea;
+        this.bus = bus;
         this.input = input;
         this.guessBtn = guessBtn;
         this.resetBtn = resetBtn;
 
         session.generateTarget();
-        updateViews();
+        publish(GameEvent.Type.RESET, null);
 
         // Button actions
         guessBtn.setOnAction(e -> handleGuess());
@@ -69,18 +65,28 @@ public class GameController {
     }
 
     /**
-     * Process a player's guess: validate input, apply hit/miss logic, update models and views.
+     * Process a player's guess: validate input, apply hit/miss logic and publish the result.
      * <p>
      * Correct guess: enemy takes damage, player gets score, may defeat enemy and increase range.
      * Incorrect guess: player takes damage.
+     * Repeated incorrect guess for the same target: rejected without touching the models.
+     * Guesses made while a hit is still waiting to land are ignored.
      * </p>
      */
     public void handleGuess() {
+        if (pendingHit != null) return;
+
         int g;
         try {
             g = Integer.parseInt(input.getText());
         } catch (Exception ex) {
-            log("Enter a number between 1-" + session.enemyRange);
+            publish(GameEvent.Type.INFO, "Enter a number between 1-" + session.enemyRange);
+            input.clear();
+            return;
+        }
+
+        if (session.guesses.contains(g)) {
+            if (repeatFeedback) publish(GameEvent.Type.INFO, "Already tried " + g + "!");
             input.clear();
             return;
         }
@@ -88,100 +94,83 @@ public class GameController {
         input.setDisable(true);
 
         if (session.checkGuess(g)) {
-            enemy.takeDamage(50);
-            session.score += 10;
-            if (session.score > session.highScore) session.highScore = session.score;
-
             playerView.setAttack();
+            guessBtn.setDisable(true);
 
-            PauseTransition pause = new PauseTransition(Duration.seconds(0.5));
-            pause.setOnFinished(ev -> {
-                playerView.update(player);
-                enemyView.update(enemy);
-                updateScore();
-                updateRange();
+            pendingHit = new PauseTransition(Duration.seconds(0.5));
+            pendingHit.setOnFinished(ev -> {
+                pendingHit = null;
+                enemy.takeDamage(50);
+                session.score += 10;
+                if (session.score > session.highScore) session.highScore = session.score;
+                publish(GameEvent.Type.HIT, "Hit! The enemy lost 50 HP.");
 
                 if (enemy.isDead()) {
                     session.score += 50;
                     player.heal(20);
-                    playerView.showPopup("+20 HP", "lime");
                     enemy.reset();
                     session.increaseRange();
                     session.generateTarget();
-                    updateRange();
-                    log("Enemy defeated! New range: 1-" + session.enemyRange);
-                    enemyView.update(enemy);
-                    playerView.update(player);
+                    publish(GameEvent.Type.ENEMY_DEFEATED,
+                            "Enemy defeated! New range: 1-" + session.enemyRange);
                 }
 
+                guessBtn.setDisable(false);
                 input.setDisable(false);
                 input.clear();
             });
-            pause.play();
-            log("Hit! The enemy lost 50 HP.");
+            pendingHit.play();
 
         } else {
+            session.guesses.add(g);
             player.takeDamage(10);
-            playerView.showPopup("-10 HP", "red");
-            playerView.update(player);
-            log("Miss! You lost 10 HP.");
+            publish(GameEvent.Type.MISS, "Miss! You lost 10 HP.");
             input.setDisable(false);
             input.clear();
         }
 
         if (player.isDead()) {
-            log("You're out of HP! Game Over!");
+            publish(GameEvent.Type.GAME_OVER, "You're out of HP! Game Over!");
             guessBtn.setDisable(true);
         }
     }
 
     /**
-     * Reset the game state (models and views), re-enable controls and clear the log.
+     * Reset the game state (models and views) and re-enable controls.
      */
     public void resetGame() {
+        // A hit still waiting for its animation belongs to the old game
+        if (pendingHit != null) {
+            pendingHit.stop();
+            pendingHit = null;
+        }
         player.reset();
         enemy.reset();
         session.reset();
         session.generateTarget();
-        updateViews();
         guessBtn.setDisable(false);
         input.setDisable(false);
         input.clear();
-        logArea.clear();
-        log("New game! Range: 1-" + session.enemyRange);
+        publish(GameEvent.Type.RESET, "New game! Range: 1-" + session.enemyRange);
     }
 
     /**
-     * Push the model state into the views (player/enemy HP, score and range).
-     */
-    private void updateViews() {
-        playerView.update(player);
-        enemyView.update(enemy);
-        updateScore();
-        updateRange();
-    }
-
-    /**
-     * Update the score display label.
-     */
-    private void updateScore() {
-        scoreLabel.setText("Score: " + session.score + " | High: " + session.highScore);
-    }
-
-    /**
-     * Update the range display label.
+     * Enable or disable the "already tried" message for repeated wrong guesses.
+     * Repeats are rejected either way.
+     *
+     * @param repeatFeedback {@code true} to log a message for repeated guesses
      */
-    private void updateRange() {
-        rangeLabel.setText("Current range: 1-" + session.enemyRange);
+    public void setRepeatFeedback(boolean repeatFeedback) {
+        this.repeatFeedback = repeatFeedback;
     }
 
     /**
-     * Append a line to the log area and auto-scroll to the bottom.
+     * Publish a snapshot of the current model state on the event bus.
      *
-     * @param text message to append
+     * @param type    the kind of event
+     * @param message log message, may be {@code null}
      */
-    private void log(String text) {
-        logArea.appendText(text + "\n");
-        logArea.setScrollTop(Double.MAX_VALUE); // auto-scroll
+    private void publish(GameEvent.Type type, String message) {
+        bus.publish(new GameEvent(type, message, player, enemy, session));
     }
 }
@@ -0,0 +1,80 @@
+/**
+ * An immutable event published by the game logic whenever the model changes.
+ * <p>
+ * Each event carries its {@link Type}, an optional log message and a snapshot
+ * of the model values at the time it was published. Subscribers running on
+ * other threads (persistence, metrics, spectators) can therefore read the
+ * snapshot without touching {@link PlayerData}, {@link EnemyData} or
+ * {@link GameSessionData} directly.
+ * </p>
+ */
+public class GameEvent {
+
+    /** The kinds of events the game logic publishes. */
+    public enum Type {
+        /** The player guessed the target and the enemy took damage. */
+        HIT,
+        /** The player guessed wrong and took damage. */
+        MISS,
+        /** The enemy's HP reached zero; the player healed and the range grew. */
+        ENEMY_DEFEATED,
+        /** The player's HP reached zero. */
+        GAME_OVER,
+        /** The game was started or reset. */
+        RESET,
+        /** A message for the player that does not change the models, e.g. invalid input. */
+        INFO
+    }
+
+    /** The kind of this event. */
+    public final Type type;
+
+    /** Message to append to the log, or {@code null} if there is none. */
+    public final String message;
+
+    /** The player's HP after the event. */
+    public final double playerHealth;
+
+    /** The enemy's HP after the event. */
+    public final double enemyHealth;
+
+    /** The current score after the event. */
+    public final int score;
+
+    /** The high score after the event. */
+    public final int highScore;
+
+    /** The upper bound of the guess range after the event. */
+    public final int enemyRange;
+
+    /** Time the event was created, in milliseconds since the epoch. */
+    public final long timestamp;
+
+    /**
+     * Creates an event from a snapshot of the given models.
+     *
+     * @param type    the kind of event
+     * @param message log message, may be {@code null}
+     * @param player  player data model
+     * @param enemy   enemy data model
+     * @param session current game session
+     */
+    public GameEvent(Type type, String message,
+                     PlayerData player, EnemyData enemy, GameSessionData session) {
+        this.type = type;
+        this.message = message;
+        this.playerHealth = player.getHealth();
+        this.enemyHealth = enemy.getHealth();
+        this.score = session.score;
+        this.highScore = session.highScore;
+        this.enemyRange = session.enemyRange;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    @Override
+    public String toString() {
+        return type + " hp=" + (int) playerHealth + " enemy=" + (int) enemyHealth
+                + " score=" + score + " range=1-" + enemyRange
+                + (message != null ? " \"" + message + "\"" : "");
+    }
+}
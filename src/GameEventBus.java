@@ -0,0 +1,90 @@
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes {@link GameEvent}s from the game logic to any number of subscribers.
+ * <p>
+ * The bus is built on {@link SubmissionPublisher}, so every subscriber gets its
+ * own bounded buffer and is driven by {@link Flow.Subscription#request(long)}
+ * on a background executor. Publishing never blocks the caller: if a
+ * subscriber's buffer is full the event is dropped for that subscriber only
+ * and counted in {@link #getDroppedCount()}. This keeps the FX thread free of
+ * work no matter how slow a subscriber is.
+ * </p>
+ */
+public class GameEventBus implements AutoCloseable {
+
+    /** The underlying publisher that buffers and delivers events. */
+    private final SubmissionPublisher<GameEvent> publisher;
+
+    /** Number of events dropped because a subscriber's buffer was full. */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Creates a bus using the default per-subscriber buffer size.
+     */
+    public GameEventBus() {
+        this(Flow.defaultBufferSize());
+    }
+
+    /**
+     * Creates a bus with the given per-subscriber buffer size.
+     *
+     * @param bufferSize maximum number of undelivered events per subscriber
+     */
+    public GameEventBus(int bufferSize) {
+        publisher = new SubmissionPublisher<>(
+                ForkJoinPool.commonPool(), bufferSize);
+    }
+
+    /**
+     * Attaches a subscriber. It receives every event published after this call.
+     *
+     * @param subscriber the subscriber to attach
+     */
+    public void subscribe(Flow.Subscriber<? super GameEvent> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Publishes an event to all subscribers without blocking.
+     *
+     * @param event the event to publish
+     */
+    public void publish(GameEvent event) {
+        if (publisher.isClosed()) return;
+        publisher.offer(event, (subscriber, ev) -> {
+            dropped.incrementAndGet();
+            return false; // don't retry, never block the publisher
+        });
+    }
+
+    /**
+     * Checks whether the bus was closed.
+     *
+     * @return {@code true} if no more events will be published
+     */
+    public boolean isClosed() {
+        return publisher.isClosed();
+    }
+
+    /**
+     * Returns how many events were dropped because a subscriber fell behind.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Closes the bus; subscribers receive {@code onComplete} after their
+     * buffered events have been delivered.
+     */
+    @Override
+    public void close() {
+        publisher.close();
+    }
+}
@@ -0,0 +1,405 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the game log to rotating files on a background thread.
+ * <p>
+ * The sink subscribes to the {@link GameEventBus} and logs every event that carries
+ * a message, so the FX thread pays nothing beyond publishing the event.
+ * Each line is only put into a lock-free queue; a writer thread drains the queue
+ * in batches, encodes the lines into a direct {@link ByteBuffer} and writes them
+ * with a {@link FileChannel}. The current file is {@code game.log}; it is rotated to
+ * {@code game-<timestamp>-<n>.log} (optionally gzipped) once it exceeds the size limit
+ * or gets older than the age limit.
+ * </p>
+ * <p>
+ * When the queue is full, the {@link Overflow} policy decides what happens to new lines.
+ * The policy applies in {@link #onNext(GameEvent)}, which runs on the bus's pool thread.
+ * The bus also has its own buffer for the sink, and events that do not fit there are
+ * dropped by the bus and counted in {@link GameEventBus#getDroppedCount()}. Since
+ * queuing a line is cheap, the policy only matters when the disk cannot keep up.
+ * I/O errors are reported on {@code System.err}; the writer then reopens the file
+ * and keeps going, losing at most the batch that failed.
+ * </p>
+ */
+public class GameLogSink implements Flow.Subscriber<GameEvent>, AutoCloseable {
+
+    /** What to do with a new line when the queue is full. */
+    public enum Overflow {
+        /** Discard the new line and count it in {@link #getDroppedCount()}. */
+        DROP,
+        /**
+         * Wait until the writer has made room. The wait is a {@link ForkJoinPool#managedBlock
+         * managed block}, so the pool can start another thread for the other subscribers.
+         * While the sink waits, further events pile up in the bus buffer and are dropped
+         * by the bus once it is full.
+         */
+        BLOCK,
+        /**
+         * Once the queue is three quarters full, keep only every {@link #SAMPLE_RATE}th line,
+         * and drop new lines like {@link #DROP} when it is full.
+         */
+        SAMPLE
+    }
+
+    /** While sampling, one in this many lines is kept. */
+    public static final int SAMPLE_RATE = 10;
+
+    /** Maximum number of records written per batch. */
+    private static final int BATCH_SIZE = 256;
+
+    /** How long the writer sleeps when the queue is empty. */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /** How long the writer waits before retrying after a failed write or rotation. */
+    private static final long RETRY_MILLIS = 1000;
+
+    /** One queued log line. */
+    private static class Record {
+        final long time;
+        final String type;
+        final String text;
+
+        Record(long time, String type, String text) {
+            this.time = time;
+            this.type = type;
+            this.text = text;
+        }
+    }
+
+    private final Path dir;
+    private final Path current;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final boolean gzip;
+    private final int capacity;
+    private final Overflow overflow;
+
+    private final Queue<Record> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private Flow.Subscription subscription;
+
+    /** Lets a {@link Overflow#BLOCK} wait until the queue has room or the sink closes. */
+    private final ForkJoinPool.ManagedBlocker roomBlocker = new ForkJoinPool.ManagedBlocker() {
+        @Override
+        public boolean block() {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            return isReleasable();
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return size.get() < capacity || !running;
+        }
+    };
+
+    /** Released once the event stream has ended, so {@link #close()} can wait for it. */
+    private final CountDownLatch streamDone = new CountDownLatch(1);
+
+    // Writer thread state
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final StringBuilder line = new StringBuilder(256);
+    private FileChannel channel;
+    private long fileBytes;
+    private long fileOpened;
+    private long retryAt;
+    private int rotations;
+
+    /**
+     * Creates a log sink and starts its writer thread.
+     *
+     * @param dir          directory for the log files, created if missing
+     * @param maxBytes     rotate once the current file is larger than this
+     * @param maxAgeMillis rotate once the current file is older than this
+     * @param gzip         whether rotated files are compressed
+     * @param capacity     maximum number of lines waiting to be written
+     * @param overflow     what to do with new lines when the queue is full
+     * @throws IOException if the log file cannot be opened
+     */
+    public GameLogSink(Path dir, long maxBytes, long maxAgeMillis, boolean gzip,
+                       int capacity, Overflow overflow) throws IOException {
+        this.dir = dir;
+        this.current = dir.resolve("game.log");
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.gzip = gzip;
+        this.capacity = capacity;
+        this.overflow = overflow;
+
+        Files.createDirectories(dir);
+        open();
+
+        writer = new Thread(this::run, "game-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(GameEvent event) {
+        if (event.message != null) enqueue(event.timestamp, event.type.name(), event.message);
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        System.err.println("Game log: lost the event stream: " + throwable);
+        streamDone.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+        streamDone.countDown();
+    }
+
+    /**
+     * Add a record to the queue, applying the overflow policy. Never does any I/O.
+     */
+    private void enqueue(long time, String type, String text) {
+        if (!running) return;
+
+        int n = size.get();
+        if (overflow == Overflow.SAMPLE && n >= capacity * 3 / 4
+                && sampleCounter.incrementAndGet() % SAMPLE_RATE != 0) {
+            dropped.incrementAndGet();
+            return;
+        }
+        while (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            if (overflow != Overflow.BLOCK || !running || !awaitRoom()) {
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+        queue.add(new Record(time, type, text));
+    }
+
+    /**
+     * Wait for room in the queue without starving the bus's pool.
+     *
+     * @return {@code false} if the thread was interrupted while waiting
+     */
+    private boolean awaitRoom() {
+        try {
+            ForkJoinPool.managedBlock(roomBlocker);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Returns how many lines were discarded because the queue was full.
+     *
+     * @return the number of dropped lines
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Writes all queued lines, stops the writer thread and closes the file.
+     * If the sink is subscribed to a bus that was closed, events still on their
+     * way are waited for (at most one second).
+     */
+    @Override
+    public void close() {
+        if (subscription != null) {
+            try {
+                streamDone.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writer loop: drain the queue in batches until closed and empty.
+     */
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            int written = 0;
+            try {
+                if (channel == null) {
+                    if (System.currentTimeMillis() < retryAt) {
+                        if (!running) break; // closing and the file is still unusable
+                        LockSupport.parkNanos(IDLE_NANOS);
+                        continue;
+                    }
+                    open();
+                }
+                Record r;
+                while (written < BATCH_SIZE && (r = queue.poll()) != null) {
+                    size.decrementAndGet();
+                    encode(r);
+                    written++;
+                }
+                flush();
+            } catch (IOException ex) {
+                report("write " + current, ex);
+                buffer.clear();
+                closeChannel();
+                retryAt = System.currentTimeMillis() + RETRY_MILLIS;
+                continue;
+            }
+
+            long now = System.currentTimeMillis();
+            if (now >= retryAt && (fileBytes > maxBytes || now - fileOpened > maxAgeMillis)) {
+                rotate();
+            }
+            if (written == 0 && running) LockSupport.parkNanos(IDLE_NANOS);
+        }
+        closeChannel();
+    }
+
+    /**
+     * Format one record and encode it into the buffer, flushing when it is full.
+     */
+    private void encode(Record r) throws IOException {
+        line.setLength(0);
+        line.append(Instant.ofEpochMilli(r.time)).append(' ')
+                .append(r.type).append(' ')
+                .append(r.text).append('\n');
+
+        CharBuffer chars = CharBuffer.wrap(line);
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (!result.isOverflow()) break;
+            flush();
+        }
+        encoder.reset();
+    }
+
+    /**
+     * Write the buffer contents to the current file.
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) fileBytes += channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Open (or append to) the current log file.
+     */
+    private void open() throws IOException {
+        channel = FileChannel.open(current, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileBytes = channel.size();
+        fileOpened = System.currentTimeMillis();
+    }
+
+    /**
+     * Close the current file, ignoring errors.
+     */
+    private void closeChannel() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        channel = null;
+    }
+
+    /**
+     * Move the current file aside, compress it if enabled and start a new one.
+     * A failed step is reported and retried later; logging goes on either way.
+     */
+    private void rotate() {
+        closeChannel();
+        if (fileBytes > 0) {
+            Path rotated = rotatedName();
+            try {
+                Files.move(current, rotated);
+                if (gzip) compress(rotated);
+            } catch (IOException ex) {
+                report("rotate " + current, ex);
+                retryAt = System.currentTimeMillis() + RETRY_MILLIS;
+            }
+        }
+        try {
+            open();
+        } catch (IOException ex) {
+            report("open " + current, ex);
+            retryAt = System.currentTimeMillis() + RETRY_MILLIS;
+        }
+    }
+
+    /**
+     * Pick a name for a rotated file that is not taken yet, plain or gzipped.
+     */
+    private Path rotatedName() {
+        Path name;
+        do {
+            name = dir.resolve("game-" + System.currentTimeMillis() + "-" + rotations++ + ".log");
+        } while (Files.exists(name) || Files.exists(name.resolveSibling(name.getFileName() + ".gz")));
+        return name;
+    }
+
+    /**
+     * Replace a file with a gzipped copy. If compression fails the plain file is kept.
+     */
+    private static void compress(Path file) {
+        Path gz = file.resolveSibling(file.getFileName() + ".gz");
+        try {
+            try (InputStream in = Files.newInputStream(file);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(gz))) {
+                in.transferTo(out);
+            }
+            Files.delete(file);
+        } catch (IOException ex) {
+            report("compress " + file, ex);
+            try {
+                Files.deleteIfExists(gz);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Report an I/O error without stopping the writer.
+     */
+    private static void report(String what, IOException ex) {
+        System.err.println("Game log: could not " + what + ": " + ex);
+    }
+}
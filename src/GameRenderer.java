@@ -0,0 +1,127 @@
+import javafx.application.Platform;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextArea;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Subscribes to the {@link GameEventBus} and renders events on the FX thread.
+ * <p>
+ * Events arrive on a background thread and are queued. At most one render pass
+ * is scheduled with {@link Platform#runLater(Runnable)} at a time, so all events
+ * that arrive before the FX thread gets to it are handled together: log lines
+ * and popups are shown for each event, but the views and labels are refreshed
+ * only once per pass, from the snapshot in the last event of the batch.
+ * </p>
+ */
+public class GameRenderer implements Flow.Subscriber<GameEvent> {
+    private GameEventBus bus;
+    private PlayerView playerView;
+    private EnemyView enemyView;
+    private Label rangeLabel, scoreLabel;
+    private TextArea logArea;
+
+    /** Events received but not rendered yet. */
+    private final Queue<GameEvent> pending = new ConcurrentLinkedQueue<>();
+
+    /** Whether a render pass is already scheduled on the FX thread. */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private Flow.Subscription subscription;
+
+    /**
+     * Creates a renderer for the given UI components and subscribes it to the bus.
+     *
+     * @param bus         event bus to render events from
+     * @param playerView  player visual view
+     * @param enemyView   enemy visual view
+     * @param rangeLabel  label that displays the current guess range
+     * @param scoreLabel  label that displays score and high score
+     * @param logArea     text area used for the scrollable log
+     */
+    public GameRenderer(GameEventBus bus, PlayerView playerView, EnemyView enemyView,
+                        Label rangeLabel, Label scoreLabel, TextArea logArea) {
+        this.bus = bus;
+        this.playerView = playerView;
+        this.enemyView = enemyView;
+        this.rangeLabel = rangeLabel;
+        this.scoreLabel = scoreLabel;
+        this.logArea = logArea;
+        bus.subscribe(this);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(GameEvent event) {
+        pending.add(event);
+        if (scheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::render);
+        }
+        subscription.request(1);
+    }
+
+    /**
+     * The stream failed and its subscription is gone. Report it and subscribe again
+     * so the game stays visible; events published in between are lost. A rejected
+     * subscription ({@link IllegalStateException}) is not retried to avoid a loop.
+     */
+    @Override
+    public void onError(Throwable throwable) {
+        System.err.println("Renderer lost its event stream: " + throwable);
+        subscription = null;
+        if (!bus.isClosed() && !(throwable instanceof IllegalStateException)) {
+            bus.subscribe(this);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    /**
+     * Render every queued event in a single pass. Runs on the FX thread.
+     */
+    private void render() {
+        scheduled.set(false);
+
+        List<GameEvent> batch = new ArrayList<>();
+        GameEvent e;
+        while ((e = pending.poll()) != null) batch.add(e);
+        if (batch.isEmpty()) return;
+
+        for (GameEvent event : batch) {
+            switch (event.type) {
+                case MISS:
+                    playerView.showPopup("-10 HP", "red");
+                    break;
+                case ENEMY_DEFEATED:
+                    playerView.showPopup("+20 HP", "lime");
+                    break;
+                case RESET:
+                    logArea.clear();
+                    break;
+                default:
+                    break;
+            }
+            if (event.message != null) logArea.appendText(event.message + "\n");
+        }
+        logArea.setScrollTop(Double.MAX_VALUE); // auto-scroll
+
+        // One view refresh for the whole batch, from the latest snapshot
+        GameEvent last = batch.get(batch.size() - 1);
+        playerView.update(last.playerHealth);
+        enemyView.update(last.enemyHealth);
+        scoreLabel.setText("Score: " + last.score + " | High: " + last.highScore);
+        rangeLabel.setText("Current range: 1-" + last.enemyRange);
+    }
+}
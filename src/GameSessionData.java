@@ -2,6 +2,7 @@
  * Manages the current state and progress of a game session.
  * <p>
  * This class keeps track of the enemy range, the random target number,
+ * the numbers already guessed for that target,
  * the player's current and highest scores, and provides helper methods
  * for generating new targets, validating guesses, and resetting progress.
  * </p>
@@ -22,6 +23,9 @@ public class GameSessionData {
     /** The player's highest recorded score across sessions. */
     public int highScore = 0;
 
+    /** Wrong guesses made for the current target. Cleared whenever a new target is generated. */
+    public final GuessHistory guesses = new GuessHistory();
+
     /** Random number generator used for target creation. */
     private final Random rand = new Random();
 
@@ -29,11 +33,12 @@ public class GameSessionData {
      * Generates a new random target number within the current enemy range.
      * <p>
      * The target will be an integer between {@code 1}
-     * and {@code enemyRange}.
+     * and {@code enemyRange}. The guess history is cleared.
      * </p>
      */
     public void generateTarget() {
         target = rand.nextInt(enemyRange) + 1;
+        guesses.reset(enemyRange);
     }
 
     /**
@@ -0,0 +1,155 @@
+import java.util.Arrays;
+
+/**
+ * Remembers which numbers were already guessed for the current target.
+ * <p>
+ * While the range is small the history is a plain bitset with one bit per
+ * number. Once the range grows beyond {@link #BITSET_LIMIT} it switches to a
+ * compressed, roaring-style layout: numbers are grouped into chunks of 65536
+ * by their upper 16 bits, and each chunk stores its lower 16 bits either as a
+ * sorted {@code char} array (few guesses) or as a 8&nbsp;KB bitmap (many guesses).
+ * Memory therefore depends on how many guesses were made rather than on the
+ * size of the range. Numbers outside the current range are not tracked.
+ * </p>
+ */
+public class GuessHistory {
+
+    /** Largest range that is tracked with a plain bitset (512 bytes). */
+    public static final int BITSET_LIMIT = 4096;
+
+    /** A chunk switches from a sorted array to a bitmap above this many entries. */
+    private static final int ARRAY_LIMIT = 4096;
+
+    /** Upper bound of the tracked range. */
+    private int range;
+
+    /** Plain bitset used while the range is at most {@link #BITSET_LIMIT}. */
+    private long[] bits;
+
+    /** Upper 16 bits of each chunk, sorted. Used for large ranges. */
+    private char[] keys = new char[0];
+
+    /** Sorted lower 16 bits per chunk, or {@code null} if the chunk is a bitmap. */
+    private char[][] arrays = new char[0][];
+
+    /** Bitmap per chunk, or {@code null} if the chunk is a sorted array. */
+    private long[][] bitmaps = new long[0][];
+
+    /** Number of entries in each chunk. */
+    private int[] cardinality = new int[0];
+
+    /** Number of chunks in use. */
+    private int chunks;
+
+    /**
+     * Clears the history and prepares it for numbers between 1 and {@code range}.
+     *
+     * @param range the current upper bound of the guess range
+     */
+    public void reset(int range) {
+        this.range = range;
+        if (range <= BITSET_LIMIT) {
+            int words = (range >>> 6) + 1;
+            if (bits == null || bits.length < words) bits = new long[words];
+            else Arrays.fill(bits, 0);
+        } else {
+            bits = null;
+        }
+        chunks = 0;
+        keys = new char[0];
+        arrays = new char[0][];
+        bitmaps = new long[0][];
+        cardinality = new int[0];
+    }
+
+    /**
+     * Checks whether a number was already guessed.
+     *
+     * @param guess the number to check
+     * @return {@code true} if the number is in the history
+     */
+    public boolean contains(int guess) {
+        if (guess < 1 || guess > range) return false;
+        if (bits != null) return (bits[guess >>> 6] & (1L << guess)) != 0;
+
+        int i = Arrays.binarySearch(keys, 0, chunks, (char) (guess >>> 16));
+        if (i < 0) return false;
+        char low = (char) guess;
+        if (bitmaps[i] != null) return (bitmaps[i][low >>> 6] & (1L << low)) != 0;
+        return Arrays.binarySearch(arrays[i], 0, cardinality[i], low) >= 0;
+    }
+
+    /**
+     * Adds a number to the history.
+     *
+     * @param guess the number to add
+     * @return {@code true} if the number was not in the history yet
+     */
+    public boolean add(int guess) {
+        if (guess < 1 || guess > range) return true;
+        if (bits != null) {
+            int word = guess >>> 6;
+            long before = bits[word];
+            bits[word] |= 1L << guess;
+            return before != bits[word];
+        }
+
+        char high = (char) (guess >>> 16);
+        int i = Arrays.binarySearch(keys, 0, chunks, high);
+        if (i < 0) i = insertChunk(-i - 1, high);
+
+        char low = (char) guess;
+        if (bitmaps[i] != null) {
+            long before = bitmaps[i][low >>> 6];
+            bitmaps[i][low >>> 6] |= 1L << low;
+            if (before == bitmaps[i][low >>> 6]) return false;
+            cardinality[i]++;
+            return true;
+        }
+
+        char[] arr = arrays[i];
+        int n = cardinality[i];
+        int pos = Arrays.binarySearch(arr, 0, n, low);
+        if (pos >= 0) return false;
+        pos = -pos - 1;
+
+        if (n == ARRAY_LIMIT) {
+            // Too many entries for a sorted array, convert the chunk to a bitmap
+            long[] bitmap = new long[1024];
+            for (int k = 0; k < n; k++) bitmap[arr[k] >>> 6] |= 1L << arr[k];
+            bitmap[low >>> 6] |= 1L << low;
+            bitmaps[i] = bitmap;
+            arrays[i] = null;
+        } else {
+            if (n == arr.length) arr = arrays[i] = Arrays.copyOf(arr, Math.max(4, n * 2));
+            System.arraycopy(arr, pos, arr, pos + 1, n - pos);
+            arr[pos] = low;
+        }
+        cardinality[i]++;
+        return true;
+    }
+
+    /**
+     * Insert an empty array chunk at the given position and return its index.
+     */
+    private int insertChunk(int pos, char high) {
+        if (chunks == keys.length) {
+            int cap = Math.max(1, chunks * 2);
+            keys = Arrays.copyOf(keys, cap);
+            arrays = Arrays.copyOf(arrays, cap);
+            bitmaps = Arrays.copyOf(bitmaps, cap);
+            cardinality = Arrays.copyOf(cardinality, cap);
+        }
+        int tail = chunks - pos;
+        System.arraycopy(keys, pos, keys, pos + 1, tail);
+        System.arraycopy(arrays, pos, arrays, pos + 1, tail);
+        System.arraycopy(bitmaps, pos, bitmaps, pos + 1, tail);
+        System.arraycopy(cardinality, pos, cardinality, pos + 1, tail);
+        keys[pos] = high;
+        arrays[pos] = new char[4];
+        bitmaps[pos] = null;
+        cardinality[pos] = 0;
+        chunks++;
+        return pos;
+    }
+}
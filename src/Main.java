@@ -149,11 +149,31 @@ public class Main extends Application {
 
         gameScene = new Scene(container, sceneWidth, sceneHeight);
 
+        // Event bus
+        // Game logic publishes events, the renderer pushes them into the views
+        GameEventBus bus = new GameEventBus();
+        new GameRenderer(bus, playerView, enemyView, rangeLabel, scoreLabel, logArea);
+
+        // Spectator stream, enabled with -Dspectator.port=<port>
+        Integer spectatorPort = Integer.getInteger("spectator.port");
+        if (spectatorPort != null) {
+            try {
+                SpectatorServer spectators = new SpectatorServer(spectatorPort);
+                bus.subscribe(spectators);
+            } catch (java.io.IOException ex) {
+                System.err.println("Could not start spectator server: " + ex.getMessage());
+            }
+        }
+
+        // Log file sink
+        GameLogSink logSink = openLogSink();
+        if (logSink != null) bus.subscribe(logSink);
+
         // Game Controller
         // Handles game logic and interactions
         GameController controller = new GameController(
-                player, enemy, playerView, enemyView, session,
-                rangeLabel, scoreLabel, logArea, input, guessBtn, resetBtn
+                player, enemy, playerView, session, bus,
+                input, guessBtn, resetBtn
         );
 
         // Start Screen Button Actions
@@ -198,6 +218,10 @@ public class Main extends Application {
             popup.show();
         });
         exitBtn.setOnAction(e -> stage.close());
+        stage.setOnHidden(e -> {
+            bus.close();
+            if (logSink != null) logSink.close();
+        });
 
         // Show start screen initially
         stage.setScene(startScene);
@@ -206,6 +230,22 @@ public class Main extends Application {
         stage.show();
     }
 
+    /**
+     * Opens the log file sink in the {@code logs} directory. Files are rotated at 1 MB
+     * or after one hour and gzipped.
+     *
+     * @return the sink, or {@code null} if the log file could not be opened
+     */
+    private GameLogSink openLogSink() {
+        try {
+            return new GameLogSink(java.nio.file.Paths.get("logs"), 1024 * 1024,
+                    60 * 60 * 1000, true, 4096, GameLogSink.Overflow.DROP);
+        } catch (java.io.IOException ex) {
+            System.err.println("Could not open log file: " + ex.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Main method to launch the JavaFX application.
      *
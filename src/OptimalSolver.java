@@ -0,0 +1,181 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the best achievable expected score from every game state by dynamic programming.
+ * <p>
+ * The rules mirror {@link GameController#handleGuess()}: a hit deals 50 damage and
+ * scores 10, defeating the enemy scores 50 more, heals the player by 20 and raises
+ * the range by one, and a miss costs 10 HP. Because the target is drawn uniformly,
+ * all untried numbers are equally likely, so the set of excluded numbers only
+ * matters through its size. After a hit the target stays the same and the next
+ * guess is certain to hit.
+ * </p>
+ * <p>
+ * Ranges are solved from {@code maxRange} down to {@link PolicyTable#MIN_RANGE}.
+ * A range only depends on the next one, so all states of one range are solved in
+ * parallel on a {@link ForkJoinPool} and stored in a concurrent memo table keyed by
+ * a packed {@code long}. States beyond {@code maxRange} are treated as worth zero;
+ * the chance of getting that far shrinks so quickly that this does not change the
+ * values near the start of the game.
+ * </p>
+ */
+public class OptimalSolver {
+
+    /** Score for a correct guess. */
+    private static final int HIT_SCORE = 10;
+
+    /** Bonus score for defeating an enemy. */
+    private static final int KILL_BONUS = 50;
+
+    /** HP the player loses for a wrong guess. */
+    private static final int MISS_DAMAGE = 10;
+
+    /** HP the player regains after defeating an enemy. */
+    private static final int KILL_HEAL = 20;
+
+    /** Layers with at most this many states are solved without splitting further. */
+    private static final int SPLIT_THRESHOLD = 16;
+
+    private final int maxRange;
+    private final ConcurrentHashMap<Long, Double> memo = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a solver for ranges up to {@code maxRange}.
+     *
+     * @param maxRange the largest range to solve
+     */
+    public OptimalSolver(int maxRange) {
+        if (maxRange < PolicyTable.MIN_RANGE) {
+            throw new IllegalArgumentException("maxRange must be at least " + PolicyTable.MIN_RANGE);
+        }
+        this.maxRange = maxRange;
+    }
+
+    /**
+     * Solves all states and returns them as a policy table.
+     *
+     * @return the solved table
+     */
+    public PolicyTable solve() {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        for (int range = maxRange; range >= PolicyTable.MIN_RANGE; range--) {
+            pool.invoke(new LayerTask(range, 0, PolicyTable.PER_RANGE));
+        }
+
+        PolicyTable table = new PolicyTable(maxRange);
+        for (int range = PolicyTable.MIN_RANGE; range <= maxRange; range++) {
+            for (int s = 0; s < PolicyTable.PER_RANGE; s++) {
+                int enemy = enemyHealth(s), hp = playerHealth(s), ex = excluded(s);
+                table.set(range, enemy, hp, ex, value(range, enemy, hp, ex));
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Solves the states {@code [from, to)} of one range, splitting the work in halves.
+     */
+    @SuppressWarnings("serial") // never serialized
+    private class LayerTask extends RecursiveAction {
+        private final int range, from, to;
+
+        LayerTask(int range, int from, int to) {
+            this.range = range;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int s = from; s < to; s++) {
+                    int enemy = enemyHealth(s), hp = playerHealth(s), ex = excluded(s);
+                    memo.put(key(range, enemy, hp, ex), solveState(range, enemy, hp, ex));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new LayerTask(range, from, mid), new LayerTask(range, mid, to));
+        }
+    }
+
+    /**
+     * Compute the expected score of one state from the values of the next range.
+     */
+    private double solveState(int range, int enemy, int hp, int excluded) {
+        if (excluded >= range) return 0; // unreachable, every number was tried
+
+        if (enemy < 100) return finishEnemy(range, hp);
+
+        // Guess untried numbers until one hits or the player runs out of HP
+        double expected = 0;
+        double reach = 1;
+        for (int ex = excluded; ex < range && hp > 0; ex++) {
+            double p = 1.0 / (range - ex);
+            expected += reach * p * (HIT_SCORE + finishEnemy(range, hp));
+            reach *= 1 - p;
+            hp -= MISS_DAMAGE;
+        }
+        return expected;
+    }
+
+    /**
+     * Value after the first hit: the known target is guessed again and the enemy dies.
+     */
+    private double finishEnemy(int range, int hp) {
+        return HIT_SCORE + KILL_BONUS + value(range + 1, 100, Math.min(100, hp + KILL_HEAL), 0);
+    }
+
+    /**
+     * Look up a solved state; states beyond {@code maxRange} are worth zero.
+     */
+    private double value(int range, int enemy, int hp, int excluded) {
+        if (range > maxRange) return 0;
+        return memo.get(key(range, enemy, hp, excluded));
+    }
+
+    /**
+     * Pack a state into a single {@code long}.
+     */
+    static long key(int range, int enemy, int hp, int excluded) {
+        return (long) range << 32 | enemy << 16 | hp << 8 | excluded;
+    }
+
+    // Decode the position of a state within one range (same layout as PolicyTable)
+    private static int excluded(int s) {
+        return s % (PolicyTable.MAX_EXCLUDED + 1);
+    }
+
+    private static int playerHealth(int s) {
+        return (s / (PolicyTable.MAX_EXCLUDED + 1) % PolicyTable.HP_STEPS + 1) * 10;
+    }
+
+    private static int enemyHealth(int s) {
+        return s / ((PolicyTable.MAX_EXCLUDED + 1) * PolicyTable.HP_STEPS) == 0 ? 100 : 50;
+    }
+
+    /**
+     * Solves the game and writes the policy table to a file.
+     *
+     * @param args optional maximum range (default 500) and output file (default policy.bin)
+     * @throws IOException if the table cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int maxRange = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        Path out = Paths.get(args.length > 1 ? args[1] : "policy.bin");
+
+        long start = System.nanoTime();
+        PolicyTable table = new OptimalSolver(maxRange).solve();
+        table.save(out);
+        long ms = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("Solved ranges 2-%d in %d ms, wrote %s%n", maxRange, ms, out);
+        System.out.printf("Expected score of a new game: %.2f%n",
+                table.expectedScore(PolicyTable.MIN_RANGE, 100, 100, 0));
+    }
+}
@@ -76,8 +76,16 @@ public class PlayerView {
      * @param player The PlayerData object representing the current state.
      */
     public void update(PlayerData player) {
-        double health = player.getHealth();
+        update(player.getHealth());
+    }
 
+    /**
+     * Updates the player sprite, health bar, and numerical HP for the
+     * given health value, e.g. taken from a {@link GameEvent} snapshot.
+     *
+     * @param health The player's current health.
+     */
+    public void update(double health) {
         // Change sprite based on health
         if (health <= 0) view.setImage(dead);
         else if (health < 40) view.setImage(low);
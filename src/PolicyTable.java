@@ -0,0 +1,181 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Table of the best achievable expected score for every game state up to a maximum range.
+ * <p>
+ * A state is the current range, the enemy's HP (100 or 50), the player's HP
+ * (10 to 100 in steps of 10) and how many wrong guesses were already made for the
+ * current target (0 to 9). The table is produced by {@link OptimalSolver} and
+ * stored as a flat array, so bots and difficulty tooling can load it with one read
+ * and look states up without any computation.
+ * </p>
+ * <p>
+ * The policy that reaches these values is simple: while the enemy has full HP,
+ * guess any number that was not tried for this target yet; once the enemy was hit,
+ * guess the same number again.
+ * </p>
+ */
+public class PolicyTable {
+
+    /** Smallest range the game uses. */
+    public static final int MIN_RANGE = 2;
+
+    /** Number of distinct player HP values (10, 20, ..., 100). */
+    static final int HP_STEPS = 10;
+
+    /** Maximum number of wrong guesses for one target before the player dies. */
+    static final int MAX_EXCLUDED = 9;
+
+    /** Number of table entries for one range. */
+    static final int PER_RANGE = 2 * HP_STEPS * (MAX_EXCLUDED + 1);
+
+    /** Marks the start of a policy file ("NBPT"). */
+    private static final int MAGIC = 0x4E425054;
+
+    /** Size of the file header: magic number and maximum range. */
+    private static final int HEADER_BYTES = 8;
+
+    private final int maxRange;
+    private final double[] values;
+
+    /**
+     * Creates an empty table for ranges from {@link #MIN_RANGE} to {@code maxRange}.
+     *
+     * @param maxRange the largest range in the table
+     * @throws IllegalArgumentException if {@code maxRange} is below {@link #MIN_RANGE}
+     *                                  or the table would not fit in an array
+     */
+    PolicyTable(int maxRange) {
+        if (maxRange < MIN_RANGE) {
+            throw new IllegalArgumentException("maxRange must be at least " + MIN_RANGE);
+        }
+        long size = entries(maxRange);
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("maxRange " + maxRange + " is too large");
+        }
+        this.maxRange = maxRange;
+        this.values = new double[(int) size];
+    }
+
+    /**
+     * Number of table entries for ranges up to {@code maxRange}.
+     */
+    private static long entries(int maxRange) {
+        return ((long) maxRange - MIN_RANGE + 1) * PER_RANGE;
+    }
+
+    /**
+     * Returns the largest range covered by this table.
+     *
+     * @return the maximum range
+     */
+    public int getMaxRange() {
+        return maxRange;
+    }
+
+    /**
+     * Returns the best achievable expected score from the given state onward.
+     * States beyond {@link #getMaxRange()} or with no HP left are worth {@code 0}.
+     *
+     * @param range       current upper bound of the guess range
+     * @param enemyHealth the enemy's HP (100 or 50)
+     * @param playerHealth the player's HP
+     * @param excluded    wrong guesses already made for the current target
+     * @return the expected future score
+     * @throws IllegalArgumentException if the state is not one the game can reach
+     */
+    public double expectedScore(int range, double enemyHealth, double playerHealth, int excluded) {
+        if (range > maxRange || playerHealth <= 0) return 0;
+        return values[index(range, enemyHealth, playerHealth, excluded)];
+    }
+
+    /**
+     * Store a value. Used by the solver.
+     */
+    void set(int range, double enemyHealth, double playerHealth, int excluded, double value) {
+        values[index(range, enemyHealth, playerHealth, excluded)] = value;
+    }
+
+    /**
+     * Compute the array index of a state, rejecting states the table does not cover.
+     */
+    private int index(int range, double enemyHealth, double playerHealth, int excluded) {
+        if (range < MIN_RANGE || range > maxRange) {
+            throw new IllegalArgumentException("range must be between " + MIN_RANGE + " and " + maxRange
+                    + ": " + range);
+        }
+        if (enemyHealth != 100 && enemyHealth != 50) {
+            throw new IllegalArgumentException("enemyHealth must be 100 or 50: " + enemyHealth);
+        }
+        if (playerHealth < 10 || playerHealth > 100 || playerHealth % 10 != 0) {
+            throw new IllegalArgumentException("playerHealth must be 10, 20, ..., 100: " + playerHealth);
+        }
+        if (excluded < 0 || excluded > MAX_EXCLUDED) {
+            throw new IllegalArgumentException("excluded must be between 0 and " + MAX_EXCLUDED
+                    + ": " + excluded);
+        }
+        int enemy = enemyHealth < 100 ? 1 : 0;
+        int hp = (int) playerHealth / 10 - 1;
+        return (range - MIN_RANGE) * PER_RANGE + (enemy * HP_STEPS + hp) * (MAX_EXCLUDED + 1) + excluded;
+    }
+
+    /**
+     * Writes the table to a file.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        try (OutputStream os = Files.newOutputStream(file);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+            out.writeInt(MAGIC);
+            out.writeInt(maxRange);
+            for (double v : values) out.writeDouble(v);
+        }
+    }
+
+    /**
+     * Reads a table written by {@link #save(Path)}.
+     *
+     * @param file the file to read
+     * @return the loaded table
+     * @throws IOException if the file cannot be read, is not a policy table, or its
+     *                     size does not match the range in its header
+     */
+    public static PolicyTable load(Path file) throws IOException {
+        long fileSize = Files.size(file);
+        try (InputStream is = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(is))) {
+            if (fileSize < HEADER_BYTES || in.readInt() != MAGIC) {
+                throw new IOException("Not a policy table: " + file);
+            }
+            int maxRange = in.readInt();
+            if (maxRange < MIN_RANGE) {
+                throw new IOException("Invalid range " + maxRange + " in policy table " + file);
+            }
+            // Check the size before allocating, so a bad header cannot ask for a huge array
+            long expected = HEADER_BYTES + entries(maxRange) * Double.BYTES;
+            if (fileSize != expected) {
+                throw new IOException("Policy table " + file + " has " + fileSize
+                        + " bytes, expected " + expected + " for range " + maxRange);
+            }
+            PolicyTable table;
+            try {
+                table = new PolicyTable(maxRange);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Invalid policy table " + file + ": " + ex.getMessage());
+            }
+            for (int i = 0; i < table.values.length; i++) table.values[i] = in.readDouble();
+            if (in.read() != -1) throw new IOException("Trailing data in policy table " + file);
+            return table;
+        }
+    }
+}
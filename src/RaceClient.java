@@ -0,0 +1,109 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Simple blocking client for the {@link RaceServer} protocol.
+ * <p>
+ * Used as a local stand-in player to drive the server, for example from tests,
+ * bots or load generators. Every call blocks until the message was sent or received.
+ * </p>
+ */
+public class RaceClient implements AutoCloseable {
+
+    /** One message received from the server. */
+    public static class Message {
+        /** One of the server ops in {@link RaceServer}, e.g. {@link RaceServer#HIT}. */
+        public final byte op;
+        /** The seat the message is about. */
+        public final int slot;
+        /** The op-specific value. */
+        public final int value;
+
+        Message(byte op, int slot, int value) {
+            this.op = op;
+            this.slot = slot;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return "op=" + op + " slot=" + slot + " value=" + value;
+        }
+    }
+
+    private final SocketChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocate(RaceServer.CLIENT_MESSAGE_SIZE);
+    private final ByteBuffer in = ByteBuffer.allocate(RaceServer.SERVER_MESSAGE_SIZE);
+
+    /**
+     * Connects to a race server.
+     *
+     * @param host server host name
+     * @param port server port
+     * @throws IOException if the connection fails
+     */
+    public RaceClient(String host, int port) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+    }
+
+    /**
+     * Asks to join a room. The server answers with {@link RaceServer#WELCOME}
+     * or {@link RaceServer#FULL}.
+     *
+     * @param roomId the room to join
+     * @throws IOException if the message cannot be sent
+     */
+    public void join(int roomId) throws IOException {
+        send(RaceServer.JOIN, roomId);
+    }
+
+    /**
+     * Sends a guess for the current target. Send the next guess only after this one
+     * was answered; otherwise the server replies {@link RaceServer#BUSY}. Before enough
+     * players have joined it replies {@link RaceServer#WAIT}.
+     *
+     * @param guess the guessed number
+     * @throws IOException if the message cannot be sent
+     */
+    public void guess(int guess) throws IOException {
+        send(RaceServer.GUESS, guess);
+    }
+
+    /**
+     * Waits for the next message from the server.
+     *
+     * @return the message
+     * @throws IOException if the connection fails or is closed by the server
+     */
+    public Message read() throws IOException {
+        in.clear();
+        while (in.hasRemaining()) {
+            if (channel.read(in) < 0) throw new IOException("Connection closed by server");
+        }
+        in.flip();
+        return new Message(in.get(), in.get(), in.getInt());
+    }
+
+    /**
+     * Closes the connection.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Write one client message.
+     */
+    private void send(byte op, int value) throws IOException {
+        out.clear();
+        out.put(op).putInt(value);
+        out.flip();
+        while (out.hasRemaining()) channel.write(out);
+    }
+}
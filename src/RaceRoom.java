@@ -0,0 +1,310 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Game logic of one head-to-head race: several players guess against the same enemy.
+ * <p>
+ * All players share one {@link GameSessionData} (target and range) and one
+ * {@link EnemyData}, while each player keeps their own {@link PlayerData} and score.
+ * The rules are those of {@link GameController#handleGuess()}: a hit deals 50 damage
+ * and scores 10, defeating the enemy scores 50 more, heals the player who landed the
+ * final hit by 20 and raises the range, and a miss costs 10 HP.
+ * </p>
+ * <p>
+ * The race starts with the first guess, which is only accepted once at least
+ * {@link #MIN_PLAYERS} players have joined; after that the room is closed to new
+ * players, so everyone starts at the same range with full HP.
+ * </p>
+ * <p>
+ * Guesses are resolved in ticks. Each player can have one guess waiting; further
+ * guesses are answered with {@link RaceServer#BUSY} until it was resolved. In each
+ * tick all waiting guesses are checked against the same target. If more than one
+ * player guessed correctly, the hit goes to the first of them in seat order, starting
+ * with the seat after the previous winner. Ties are therefore decided deterministically
+ * and the seats that are taken win them in turn. The others receive {@link RaceServer#LATE}.
+ * </p>
+ * <p>
+ * The room does no I/O itself; it writes {@link RaceServer} protocol messages into
+ * each seat's outgoing buffer.
+ * </p>
+ */
+public class RaceRoom {
+
+    /** Maximum number of players in one room. */
+    public static final int MAX_PLAYERS = 8;
+
+    /** Number of players needed before the race can start. */
+    public static final int MIN_PLAYERS = 2;
+
+    /** One player's place in the room. */
+    static class Seat {
+        final int slot;
+        final PlayerData player = new PlayerData();
+        final GuessHistory guesses = new GuessHistory();
+        final ByteBuffer out;
+
+        /** The guess waiting for the next tick, valid if {@link #hasGuess} is set. */
+        int pending;
+        boolean hasGuess;
+
+        int score;
+        boolean connected = true;
+
+        /** Set when the outgoing buffer filled up; the server then drops the connection. */
+        boolean overflowed;
+
+        /** Connection data owned by the server. */
+        Object attachment;
+
+        Seat(int slot, ByteBuffer out) {
+            this.slot = slot;
+            this.out = out;
+        }
+
+        boolean active() {
+            return connected && !player.isDead();
+        }
+    }
+
+    /** The room's id as chosen by the players. */
+    final int id;
+
+    private final GameSessionData session = new GameSessionData();
+    private final EnemyData enemy = new EnemyData();
+    private final Seat[] seats = new Seat[MAX_PLAYERS];
+
+    /** Slot that comes first in the next tie: the one after the last winner. */
+    private int nextSeat;
+
+    /** Set once the first guess was resolved; no one can join after that. */
+    private boolean started;
+
+    private boolean over;
+
+    /**
+     * Creates a room and draws its first target.
+     *
+     * @param id the room id
+     */
+    RaceRoom(int id) {
+        this.id = id;
+        session.generateTarget();
+    }
+
+    /**
+     * Adds a player to the room and greets them.
+     *
+     * @param out the player's outgoing message buffer
+     * @return the new seat, or {@code null} if the room is full, started or finished
+     */
+    Seat join(ByteBuffer out) {
+        if (started || over) return null;
+        for (int i = 0; i < MAX_PLAYERS; i++) {
+            if (seats[i] == null) {
+                Seat seat = seats[i] = new Seat(i, out);
+                seat.guesses.reset(session.enemyRange);
+                send(seat, RaceServer.WELCOME, i, session.enemyRange);
+                int count = connectedCount();
+                for (Seat other : seats) {
+                    if (other != null && other != seat) send(other, RaceServer.JOINED, i, count);
+                }
+                return seat;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Count the players that are still connected.
+     */
+    private int connectedCount() {
+        int count = 0;
+        for (Seat seat : seats) {
+            if (seat != null && seat.connected) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Marks a seat as disconnected. Its pending guesses are discarded. Before the race
+     * has started the seat is freed for the next player, and a room that nobody is
+     * left in is finished.
+     *
+     * @param seat the seat to release
+     */
+    void leave(Seat seat) {
+        seat.connected = false;
+        seat.hasGuess = false;
+        if (!started) {
+            if (seats[seat.slot] == seat) seats[seat.slot] = null;
+            if (seats().isEmpty()) over = true;
+            return;
+        }
+        checkOver();
+    }
+
+    /**
+     * Queues a guess for the next tick. A guess is rejected if the race cannot start
+     * yet, if the player still has a guess waiting, or if the player is out of HP.
+     *
+     * @param seat  the guessing seat
+     * @param guess the guessed number
+     */
+    void guess(Seat seat, int guess) {
+        if (over || !seat.connected) return;
+        if (!started && connectedCount() < MIN_PLAYERS) {
+            send(seat, RaceServer.WAIT, seat.slot, MIN_PLAYERS);
+        } else if (seat.player.isDead()) {
+            send(seat, RaceServer.OUT, seat.slot, 0);
+        } else if (seat.hasGuess) {
+            send(seat, RaceServer.BUSY, seat.slot, guess);
+        } else {
+            seat.pending = guess;
+            seat.hasGuess = true;
+        }
+    }
+
+    /**
+     * Returns the seats that are taken, including players who left after the start.
+     *
+     * @return the taken seats in slot order
+     */
+    List<Seat> seats() {
+        List<Seat> taken = new ArrayList<>();
+        for (Seat seat : seats) {
+            if (seat != null) taken.add(seat);
+        }
+        return taken;
+    }
+
+    /**
+     * Checks whether any seat has a guess waiting.
+     *
+     * @return {@code true} if {@link #tick()} has work to do
+     */
+    boolean hasPending() {
+        for (Seat seat : seats) {
+            if (seat != null && seat.hasGuess) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether every player is out of HP or gone.
+     *
+     * @return {@code true} if the race is finished
+     */
+    boolean isOver() {
+        return over;
+    }
+
+    /**
+     * Resolves at most one pending guess per seat against the current target.
+     */
+    void tick() {
+        if (over) return;
+
+        List<Seat> correct = new ArrayList<>();
+        for (Seat seat : seats) {
+            if (seat == null || !seat.hasGuess) continue;
+            int g = seat.pending;
+            seat.hasGuess = false;
+            started = true;
+
+            if (seat.guesses.contains(g)) {
+                send(seat, RaceServer.REPEAT, seat.slot, g);
+            } else if (session.checkGuess(g)) {
+                correct.add(seat);
+            } else {
+                seat.guesses.add(g);
+                seat.player.takeDamage(10);
+                broadcast(RaceServer.MISS, seat.slot, (int) seat.player.getHealth());
+                if (seat.player.isDead()) {
+                    broadcast(RaceServer.OUT, seat.slot, 0);
+                }
+            }
+        }
+
+        if (!correct.isEmpty()) {
+            Seat winner = correct.get(0);
+            for (Seat seat : correct) {
+                if (priority(seat) < priority(winner)) winner = seat;
+            }
+            for (Seat seat : correct) {
+                if (seat != winner) send(seat, RaceServer.LATE, seat.slot, session.target);
+            }
+            hit(winner);
+        }
+        checkOver();
+    }
+
+    /**
+     * Position of a seat in the tie-break order, counted from {@link #nextSeat}.
+     */
+    private int priority(Seat seat) {
+        return Math.floorMod(seat.slot - nextSeat, MAX_PLAYERS);
+    }
+
+    /**
+     * Apply a hit for the given seat, defeating the enemy if its HP runs out.
+     */
+    private void hit(Seat seat) {
+        nextSeat = (seat.slot + 1) % MAX_PLAYERS;
+        enemy.takeDamage(50);
+        seat.score += 10;
+        broadcast(RaceServer.HIT, seat.slot, seat.score);
+
+        if (enemy.isDead()) {
+            seat.score += 50;
+            seat.player.heal(20);
+            enemy.reset();
+            session.increaseRange();
+            session.generateTarget();
+            for (Seat s : seats) {
+                if (s != null) s.guesses.reset(session.enemyRange);
+            }
+            broadcast(RaceServer.DEFEATED, seat.slot, session.enemyRange);
+        }
+    }
+
+    /**
+     * End the race once nobody can guess any more and announce the highest score.
+     */
+    private void checkOver() {
+        if (over) return;
+        Seat best = null;
+        for (Seat seat : seats) {
+            if (seat == null) continue;
+            if (seat.active()) return;
+            if (best == null || seat.score > best.score) best = seat;
+        }
+        if (best == null) return;
+        over = true;
+        broadcast(RaceServer.OVER, best.slot, best.score);
+    }
+
+    /**
+     * Send a message to every connected seat.
+     */
+    private void broadcast(byte op, int slot, int value) {
+        for (Seat seat : seats) {
+            if (seat != null) send(seat, op, slot, value);
+        }
+    }
+
+    /**
+     * Write one message into a seat's outgoing buffer. A seat whose buffer is full
+     * cannot keep up and is disconnected instead of holding up the room.
+     */
+    private void send(Seat seat, byte op, int slot, int value) {
+        if (!seat.connected) return;
+        if (seat.out.remaining() < RaceServer.SERVER_MESSAGE_SIZE) {
+            seat.overflowed = true;
+            seat.connected = false;
+            seat.hasGuess = false;
+            return;
+        }
+        seat.out.put(op).put((byte) slot).putInt(value);
+    }
+}
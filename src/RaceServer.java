@@ -0,0 +1,328 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Non-blocking server for the head-to-head race mode.
+ * <p>
+ * A single thread runs a {@link Selector} event loop for all connections and all
+ * {@link RaceRoom}s. Each loop iteration first reads every message that arrived,
+ * then lets every room with waiting guesses resolve one {@link RaceRoom#tick() tick},
+ * and finally writes the results back. Because only this thread touches the rooms,
+ * no locking is needed and a room costs little more than its players' buffers.
+ * </p>
+ * <p>
+ * The protocol uses fixed-size big-endian messages. Clients send 5 bytes:
+ * <pre>
+ *   byte op   ({@link #JOIN} or {@link #GUESS})
+ *   int  room id (JOIN) or guessed number (GUESS)
+ * </pre>
+ * The server sends 6 bytes:
+ * <pre>
+ *   byte op    ({@link #WELCOME} ... {@link #BUSY})
+ *   byte slot  the seat the message is about
+ *   int  value depends on op, see the constants
+ * </pre>
+ */
+public class RaceServer implements AutoCloseable {
+
+    /** Client: join the room given as value. Leaves the current room first. */
+    public static final byte JOIN = 1;
+    /** Client: guess the number given as value. */
+    public static final byte GUESS = 2;
+
+    /** Server: you joined; slot is your seat, value is the current range. */
+    public static final byte WELCOME = 1;
+    /** Server: slot hit the enemy; value is that player's score. */
+    public static final byte HIT = 2;
+    /** Server: slot missed; value is that player's remaining HP. */
+    public static final byte MISS = 3;
+    /** Server: slot defeated the enemy; value is the new range. */
+    public static final byte DEFEATED = 4;
+    /** Server: your guess was correct but another player won the hit; value is the target. */
+    public static final byte LATE = 5;
+    /** Server: you already tried this number for the current target; value is the guess. */
+    public static final byte REPEAT = 6;
+    /** Server: slot is out of HP. */
+    public static final byte OUT = 7;
+    /** Server: the race is over; slot won with the score given as value. */
+    public static final byte OVER = 8;
+    /** Server: the room is full, already racing or finished; value is the room id. */
+    public static final byte FULL = 9;
+    /** Server: slot joined your room; value is the number of connected players. */
+    public static final byte JOINED = 10;
+    /** Server: the race needs more players before guessing; value is the minimum. */
+    public static final byte WAIT = 11;
+    /** Server: your previous guess is still waiting; value is the rejected guess. */
+    public static final byte BUSY = 12;
+
+    /** Size of every message sent by a client. */
+    public static final int CLIENT_MESSAGE_SIZE = 5;
+
+    /** Size of every message sent by the server. */
+    public static final int SERVER_MESSAGE_SIZE = 6;
+
+    /** Outgoing buffer per connection; a client that lets it fill up is dropped. */
+    private static final int OUT_BUFFER_SIZE = 1024;
+
+    /** State of one client connection. */
+    private static class Connection {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(CLIENT_MESSAGE_SIZE * 16);
+        final ByteBuffer out = ByteBuffer.allocate(OUT_BUFFER_SIZE);
+        RaceRoom room;
+        RaceRoom.Seat seat;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread loop;
+    private volatile boolean running = true;
+
+    /** Rooms by id. Finished rooms are removed so the id can be reused. */
+    private final Map<Integer, RaceRoom> rooms = new HashMap<>();
+
+    /** Rooms with guesses waiting for a tick, in the order they received them. */
+    private final Set<RaceRoom> dirty = new LinkedHashSet<>();
+
+    /** Rooms whose players have messages to send after this iteration. */
+    private final Set<RaceRoom> touched = new LinkedHashSet<>();
+
+    /**
+     * Opens the server and starts its event loop.
+     *
+     * @param port port to listen on, or {@code 0} to pick a free one
+     * @throws IOException if the socket cannot be opened
+     */
+    public RaceServer(int port) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        loop = new Thread(this::run, "race-server");
+        loop.start();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Stops the event loop and disconnects all players.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            loop.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Event loop: read messages, tick rooms, write results.
+     */
+    private void run() {
+        try {
+            while (running) {
+                // Don't wait for new input while rooms still have queued guesses
+                if (dirty.isEmpty()) selector.select();
+                else selector.selectNow();
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) accept();
+                    else if (key.isReadable()) read(key);
+                    if (key.isValid() && key.isWritable()) flush(key);
+                }
+
+                Iterator<RaceRoom> rit = dirty.iterator();
+                while (rit.hasNext()) {
+                    RaceRoom room = rit.next();
+                    room.tick();
+                    touched.add(room);
+                    if (!room.hasPending()) rit.remove();
+                }
+
+                // Disconnecting a player can produce messages for the rest of its room
+                while (!touched.isEmpty()) {
+                    RaceRoom[] batch = touched.toArray(new RaceRoom[0]);
+                    touched.clear();
+                    for (RaceRoom room : batch) flushRoom(room);
+                }
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException ignored) {
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Send the queued messages of every player in a room and drop players that fell behind.
+     */
+    private void flushRoom(RaceRoom room) {
+        for (RaceRoom.Seat seat : room.seats()) {
+            SelectionKey key = (SelectionKey) seat.attachment;
+            if (key == null || !key.isValid()) continue;
+            if (seat.overflowed) disconnect(key);
+            else flush(key);
+        }
+        if (room.isOver() && rooms.get(room.id) == room) rooms.remove(room.id);
+    }
+
+    /**
+     * Accept a new player connection.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+    }
+
+    /**
+     * Read and handle all complete messages from a connection.
+     */
+    private void read(SelectionKey key) {
+        Connection conn = (Connection) key.attachment();
+        try {
+            if (conn.channel.read(conn.in) < 0) {
+                disconnect(key);
+                return;
+            }
+        } catch (IOException ex) {
+            disconnect(key);
+            return;
+        }
+
+        conn.in.flip();
+        while (conn.in.remaining() >= CLIENT_MESSAGE_SIZE) {
+            byte op = conn.in.get();
+            int value = conn.in.getInt();
+            if (op == JOIN) {
+                join(key, conn, value);
+            } else if (op == GUESS && conn.seat != null) {
+                conn.room.guess(conn.seat, value);
+                dirty.add(conn.room);
+                touched.add(conn.room);
+            } else if (op != GUESS) {
+                disconnect(key); // not speaking the protocol
+                return;
+            }
+        }
+        conn.in.compact();
+    }
+
+    /**
+     * Move a connection into the given room, creating the room if needed.
+     */
+    private void join(SelectionKey key, Connection conn, int roomId) {
+        if (conn.seat != null) {
+            conn.room.leave(conn.seat);
+            touched.add(conn.room);
+            conn.room = null;
+            conn.seat = null;
+        }
+
+        RaceRoom room = rooms.get(roomId);
+        if (room == null || room.isOver()) { // a finished room is replaced right away
+            room = new RaceRoom(roomId);
+            rooms.put(roomId, room);
+        }
+        RaceRoom.Seat seat = room.join(conn.out);
+        if (seat == null) {
+            if (conn.out.remaining() >= SERVER_MESSAGE_SIZE) {
+                conn.out.put(FULL).put((byte) 0).putInt(roomId);
+            }
+            flush(key);
+            return;
+        }
+        seat.attachment = key;
+        conn.room = room;
+        conn.seat = seat;
+        touched.add(room);
+    }
+
+    /**
+     * Write as much of a connection's outgoing buffer as the socket accepts.
+     */
+    private void flush(SelectionKey key) {
+        Connection conn = (Connection) key.attachment();
+        try {
+            conn.out.flip();
+            conn.channel.write(conn.out);
+            conn.out.compact();
+            int ops = conn.out.position() > 0
+                    ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                    : SelectionKey.OP_READ;
+            if (key.interestOps() != ops) key.interestOps(ops);
+        } catch (IOException ex) {
+            disconnect(key);
+        }
+    }
+
+    /**
+     * Close a connection and free its seat.
+     */
+    private void disconnect(SelectionKey key) {
+        Connection conn = (Connection) key.attachment();
+        if (conn != null && conn.seat != null) {
+            conn.room.leave(conn.seat);
+            touched.add(conn.room);
+            conn.seat = null;
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Runs a race server until the process is stopped.
+     *
+     * @param args optional port (default 7777)
+     * @throws IOException if the socket cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        RaceServer server = new RaceServer(port);
+        System.out.println("Race server listening on port " + server.getPort());
+    }
+}
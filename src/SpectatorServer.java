@@ -0,0 +1,367 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+
+/**
+ * Streams the live state of a game to any number of spectators over a local socket.
+ * <p>
+ * The server subscribes to the {@link GameEventBus} and turns every {@link GameEvent}
+ * into a small binary frame. Most frames are deltas that only contain the fields that
+ * changed; every {@link #KEYFRAME_INTERVAL} events a full keyframe is sent instead, and
+ * a spectator that joins late starts with the latest keyframe.
+ * </p>
+ * <p>
+ * Each frame is encoded once into a slice of a direct {@link Slab} and shared between
+ * all spectators as a read-only {@link ByteBuffer#duplicate() duplicate}. Because the
+ * frames already live in native memory, the socket writes them without the temporary
+ * copy a heap buffer needs, so fan-out costs no per-spectator copies; one slab
+ * allocation serves hundreds of frames.
+ * Keyframes outside the regular interval are only encoded when a late joiner or
+ * a slow spectator actually needs one.
+ * A spectator that cannot keep up never slows the game down: when more than
+ * {@link #MAX_PENDING} frames are waiting for it, its pending deltas are discarded
+ * and replaced by the latest keyframe.
+ * </p>
+ * <p>
+ * Frame layout (big-endian):
+ * <pre>
+ *   short  length of the rest of the frame
+ *   byte   kind (0 = keyframe, 1 = delta)
+ *   int    sequence number
+ *   byte   {@link GameEvent.Type} ordinal
+ *   byte   mask of the fields that follow
+ *   short  player HP   (mask bit 0)
+ *   short  enemy HP    (mask bit 1)
+ *   int    score       (mask bit 2)
+ *   int    high score  (mask bit 3)
+ *   int    enemy range (mask bit 4)
+ * </pre>
+ */
+public class SpectatorServer implements Flow.Subscriber<GameEvent>, AutoCloseable {
+
+    /** A full keyframe is broadcast after this many events. */
+    public static final int KEYFRAME_INTERVAL = 32;
+
+    /** Maximum frames queued for one spectator before its deltas are conflated. */
+    public static final int MAX_PENDING = 64;
+
+    private static final byte KEYFRAME = 0, DELTA = 1;
+    private static final int PLAYER_HP = 1, ENEMY_HP = 1 << 1, SCORE = 1 << 2,
+            HIGH_SCORE = 1 << 3, RANGE = 1 << 4, ALL = 0x1F;
+
+    /** Size of one direct slab that frames are carved from. */
+    private static final int SLAB_SIZE = 16 * 1024;
+
+    /**
+     * Hands out small slices of a direct buffer and starts a new one when it is used up.
+     * A slab is freed by the garbage collector once none of its frames is referenced.
+     * Each slab is used by a single thread.
+     */
+    private static class Slab {
+        private ByteBuffer slab;
+
+        ByteBuffer take(int size) {
+            if (slab == null || slab.remaining() < size) slab = ByteBuffer.allocateDirect(SLAB_SIZE);
+            ByteBuffer slice = slab.slice();
+            slice.limit(size);
+            slab.position(slab.position() + size);
+            return slice;
+        }
+    }
+
+    /** A broadcast frame together with the event and sequence number it encodes. */
+    private static class Frame {
+        final ByteBuffer data;
+        final GameEvent event;
+        final int seq;
+        final boolean keyframe;
+
+        Frame(ByteBuffer data, GameEvent event, int seq, boolean keyframe) {
+            this.data = data;
+            this.event = event;
+            this.seq = seq;
+            this.keyframe = keyframe;
+        }
+    }
+
+    /** Per-spectator connection state. Only touched by the selector thread. */
+    private static class Client {
+        final SocketChannel channel;
+        final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread loop;
+
+    /** Frames encoded on the publisher thread, waiting to be fanned out. */
+    private final Queue<Frame> outbox = new ConcurrentLinkedQueue<>();
+
+    /** Buffer for discarding spectator input. Only used by the selector thread. */
+    private final ByteBuffer scratch = ByteBuffer.allocate(256);
+
+    /** Memory for frames encoded on the publisher thread. */
+    private final Slab frameSlab = new Slab();
+
+    /** Memory for keyframes encoded on demand by the selector thread. */
+    private final Slab keyframeSlab = new Slab();
+
+    /** Latest frame fanned out. Only used by the selector thread. */
+    private Frame latest;
+
+    /** Keyframe for {@link #latest}, encoded on demand. Only used by the selector thread. */
+    private ByteBuffer latestKeyframe;
+
+    /** Last published event, used as the base for the next delta. */
+    private GameEvent last;
+    private int seq;
+    private Flow.Subscription subscription;
+    private volatile boolean running = true;
+
+    /**
+     * Opens a spectator server on the loopback interface.
+     *
+     * @param port port to listen on, or {@code 0} to pick a free one
+     * @throws IOException if the socket cannot be opened
+     */
+    public SpectatorServer(int port) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        loop = new Thread(this::run, "spectator-server");
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(GameEvent event) {
+        boolean keyframe = last == null || seq % KEYFRAME_INTERVAL == 0;
+        ByteBuffer data = keyframe
+                ? encode(frameSlab, KEYFRAME, seq, event, ALL)
+                : encode(frameSlab, DELTA, seq, event, changedFields(last, event));
+        outbox.add(new Frame(data, event, seq, keyframe));
+        last = event;
+        seq++;
+
+        selector.wakeup();
+        subscription.request(1);
+    }
+
+    /**
+     * The event stream failed and no more frames will arrive. Close the server so
+     * spectators are disconnected instead of watching a frozen game.
+     */
+    @Override
+    public void onError(Throwable throwable) {
+        System.err.println("Spectator server lost its event stream: " + throwable);
+        close();
+    }
+
+    @Override
+    public void onComplete() {
+        close();
+    }
+
+    /**
+     * Stops the server and disconnects all spectators.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Compute the mask of fields that differ between two events.
+     */
+    private static int changedFields(GameEvent a, GameEvent b) {
+        int mask = 0;
+        if ((int) a.playerHealth != (int) b.playerHealth) mask |= PLAYER_HP;
+        if ((int) a.enemyHealth != (int) b.enemyHealth) mask |= ENEMY_HP;
+        if (a.score != b.score) mask |= SCORE;
+        if (a.highScore != b.highScore) mask |= HIGH_SCORE;
+        if (a.enemyRange != b.enemyRange) mask |= RANGE;
+        return mask;
+    }
+
+    /**
+     * Encode one frame into a read-only slice of the given slab.
+     */
+    private static ByteBuffer encode(Slab slab, byte kind, int seq, GameEvent event, int mask) {
+        int size = 2 + 7
+                + ((mask & PLAYER_HP) != 0 ? 2 : 0) + ((mask & ENEMY_HP) != 0 ? 2 : 0)
+                + ((mask & SCORE) != 0 ? 4 : 0) + ((mask & HIGH_SCORE) != 0 ? 4 : 0)
+                + ((mask & RANGE) != 0 ? 4 : 0);
+        ByteBuffer buf = slab.take(size);
+        buf.putShort((short) (size - 2));
+        buf.put(kind);
+        buf.putInt(seq);
+        buf.put((byte) event.type.ordinal());
+        buf.put((byte) mask);
+        if ((mask & PLAYER_HP) != 0) buf.putShort((short) event.playerHealth);
+        if ((mask & ENEMY_HP) != 0) buf.putShort((short) event.enemyHealth);
+        if ((mask & SCORE) != 0) buf.putInt(event.score);
+        if ((mask & HIGH_SCORE) != 0) buf.putInt(event.highScore);
+        if ((mask & RANGE) != 0) buf.putInt(event.enemyRange);
+        buf.flip();
+        return buf.asReadOnlyBuffer();
+    }
+
+    /**
+     * Selector loop: accept spectators, fan out frames and flush pending writes.
+     */
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+
+                Frame frame;
+                while ((frame = outbox.poll()) != null) broadcast(frame);
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) accept();
+                    else if (key.isReadable()) drain(key);
+                    if (key.isValid() && key.isWritable()) flush(key);
+                }
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        } finally {
+            for (SelectionKey key : selector.keys()) disconnect(key);
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Accept a new spectator and queue the latest keyframe for it.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        Client client = new Client(channel);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ, client);
+        if (latest != null) {
+            client.pending.add(latestKeyframe().duplicate());
+            flush(key);
+        }
+    }
+
+    /**
+     * Queue a frame for every spectator, conflating for those that fell behind.
+     */
+    private void broadcast(Frame frame) {
+        latest = frame;
+        latestKeyframe = frame.keyframe ? frame.data : null;
+        for (SelectionKey key : selector.keys()) {
+            if (!(key.attachment() instanceof Client) || !key.isValid()) continue;
+            Client client = (Client) key.attachment();
+
+            if (client.pending.size() >= MAX_PENDING) {
+                // Keep a partially written frame so the stream stays aligned
+                ByteBuffer head = client.pending.peek();
+                client.pending.clear();
+                if (head.position() > 0) client.pending.add(head);
+                client.pending.add(latestKeyframe().duplicate());
+            } else {
+                client.pending.add(frame.data.duplicate());
+            }
+            flush(key);
+        }
+    }
+
+    /**
+     * Return the keyframe for the latest state, encoding it the first time it is needed.
+     */
+    private ByteBuffer latestKeyframe() {
+        if (latestKeyframe == null) {
+            latestKeyframe = encode(keyframeSlab, KEYFRAME, latest.seq, latest.event, ALL);
+        }
+        return latestKeyframe;
+    }
+
+    /**
+     * Write as many pending frames as the socket accepts without blocking.
+     */
+    private void flush(SelectionKey key) {
+        Client client = (Client) key.attachment();
+        try {
+            ByteBuffer head;
+            while ((head = client.pending.peek()) != null) {
+                client.channel.write(head);
+                if (head.hasRemaining()) break;
+                client.pending.poll();
+            }
+            int ops = client.pending.isEmpty()
+                    ? SelectionKey.OP_READ
+                    : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+            if (key.interestOps() != ops) key.interestOps(ops);
+        } catch (IOException ex) {
+            disconnect(key);
+        }
+    }
+
+    /**
+     * Discard anything a spectator sends and detect when it disconnects.
+     */
+    private void drain(SelectionKey key) {
+        Client client = (Client) key.attachment();
+        try {
+            int n;
+            while ((n = client.channel.read(scratch)) > 0) scratch.clear();
+            if (n < 0) disconnect(key);
+        } catch (IOException ex) {
+            disconnect(key);
+        }
+    }
+
+    /**
+     * Close a channel and cancel its key.
+     */
+    private void disconnect(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+        }
+    }
+}